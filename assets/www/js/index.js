@@ -56,7 +56,8 @@ var app = {
 				data : {
 					domain : domain,
 					username : username,
-					password : password
+					password : password,
+					transport : 'UDP' // 'UDP' o 'TCP' (conexión persistente con keep-alive)
 				},
 				error: function() {
 					alert('error');
@@ -75,6 +76,17 @@ var app = {
 			}); // Desconexión con el servidor SIP (debería haberse realizado una conexión exitosa antes!)
 		});
 
+		$('#transportStats').on('click', function() {
+			SipManagerPlugin.getTransportStats({ // Estadísticas de registro y establecimiento de llamadas por transporte
+				success: function(stats) {
+					alert(JSON.stringify(stats));
+				},
+				error: function() {
+					alert('error');
+				}
+			});
+		});
+
 		$('#makeCall').on('click', function() {
 
 			var domain = prompt('Domain', 'iptel.org');
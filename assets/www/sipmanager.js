@@ -27,6 +27,9 @@
 		    setSpeakerMode : function(opts) {
 		    	invoke('speaker_mode', opts);
 		    },
+		    getTransportStats : function(opts) {
+		    	invoke('transport_stats', opts);
+		    },
 		    listener : {
 		    	onConnecting: function() {
 		    		console.log('onConnecting');
@@ -1,5 +1,7 @@
 package ar.com.zgroup.sip.cordova.plugin;
 
+import java.util.Map;
+
 import org.apache.cordova.CallbackContext;
 import org.apache.cordova.CordovaArgs;
 import org.apache.cordova.CordovaInterface;
@@ -20,6 +22,7 @@ import ar.com.zgroup.sip.SipManagerActivity;
 import ar.com.zgroup.sip.service.SipManagerService;
 import ar.com.zgroup.sip.service.SipManagerService.SipManagerLocalBinder;
 import ar.com.zgroup.sip.service.SipManagerService.SipManagerListener;
+import ar.com.zgroup.sip.service.SipTransportStats;
 
 public class SipManagerPlugin extends CordovaPlugin implements SipManagerListener {
 	
@@ -32,6 +35,7 @@ public class SipManagerPlugin extends CordovaPlugin implements SipManagerListene
 	private static final String TAKE_CALL = "take_call";
 	private static final String REJECT_CALL = "reject_call";
 	private static final String SPEAKER_MODE = "speaker_mode";
+	private static final String TRANSPORT_STATS = "transport_stats";
 	
 	private SipManagerService mSipManagerService;
 	//private CallbackContext mPersistentCallbackContext;
@@ -84,6 +88,8 @@ public class SipManagerPlugin extends CordovaPlugin implements SipManagerListene
 				rejectIncomingCall(callbackContext);
 			} else if (SPEAKER_MODE.equals(action)) {
 				setSpeakerMode(args, callbackContext);
+			} else if (TRANSPORT_STATS.equals(action)) {
+				getTransportStats(callbackContext);
 			} else {
 				return false;
 			}
@@ -138,8 +144,9 @@ public class SipManagerPlugin extends CordovaPlugin implements SipManagerListene
 			String domain = options.getString("domain");
 			String username = options.getString("username");
 			String passwd = options.getString("password");
+			String transport = options.optString("transport", SipManagerService.TRANSPORT_UDP);
 			try {
-				mSipManagerService.connect(domain, username, passwd);
+				mSipManagerService.connect(domain, username, passwd, transport);
 				callbackContext.success(new JSONObject());
 			} catch (SipException e) {
 				callbackContext.error(new JSONObject());
@@ -163,6 +170,21 @@ public class SipManagerPlugin extends CordovaPlugin implements SipManagerListene
 		}
 	}
 	
+	public void getTransportStats(CallbackContext callbackContext) throws JSONException {
+		JSONObject result = new JSONObject();
+		for (Map.Entry<String, SipTransportStats> entry : mSipManagerService.getTransportStats().entrySet()) {
+			SipTransportStats stats = entry.getValue();
+			JSONObject json = new JSONObject();
+			json.put("registrationAttempts", stats.getRegistrationAttempts());
+			json.put("registrationAttemptsPerHour", stats.getRegistrationAttemptsPerHour());
+			json.put("connectedTime", stats.getConnectedTime());
+			json.put("registrationLatency", stats.getAverageRegistrationLatency());
+			json.put("callSetupLatency", stats.getAverageCallSetupLatency());
+			result.put(entry.getKey(), json);
+		}
+		callbackContext.success(result);
+	}
+	
 	@Override
 	public void onConnecting() {
 		webView.sendJavascript("SipManagerPlugin.listener.onConnecting()");
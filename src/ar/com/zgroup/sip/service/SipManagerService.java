@@ -1,5 +1,9 @@
 package ar.com.zgroup.sip.service;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 import org.apache.cordova.LOG;
 
 import android.app.Notification;
@@ -19,6 +23,7 @@ import android.os.Binder;
 import android.os.IBinder;
 import android.os.PowerManager;
 import android.os.PowerManager.WakeLock;
+import android.os.SystemClock;
 import android.support.v4.app.NotificationCompat;
 import ar.com.zgroup.sip.R;
 import ar.com.zgroup.sip.SipManagerActivity;
@@ -29,11 +34,17 @@ public class SipManagerService extends Service {
 	private static final String INCOMING_CALL_ACTION = "ar.com.zgroup.sip.INCOMING_CALL";
 	private static final int RUNNING_NOTIFICATION_ID = 72046;
 	
+	public static final String TRANSPORT_UDP = "UDP";
+	public static final String TRANSPORT_TCP = "TCP";
+	
 	private SipManager mSipManager;
 	private SipProfile mSipProfile;
 	private SipAudioCall mCurrentCall;
 	private SipAudioCall mIncomingCall;
 	
+	private volatile SipTransportStats mTransportStats;
+	private Map<String, SipTransportStats> mTransportStatsByProtocol = new HashMap<String, SipTransportStats>();
+	
 	private IncomingCallReceiver mIncomingCallReceiver;
 	
 	private Notification mRunningNotification;
@@ -51,11 +62,15 @@ public class SipManagerService extends Service {
 	private final class RegistrationListener implements SipRegistrationListener {
 		public void onRegistering(String localProfileUri) {
 			LOG.i(TAG, "Registering with SIP Server...");
+			SipTransportStats transportStats = mTransportStats;
+			if (transportStats != null) transportStats.onRegistering();
 			if (mListener != null) mListener.onConnecting();
 		}
 		
 		public void onRegistrationDone(String localProfileUri, long expiryTime) {
 			LOG.i(TAG, "Registration succeded...");
+			SipTransportStats transportStats = mTransportStats;
+			if (transportStats != null) transportStats.onRegistrationDone();
 			if (mIncomingCallReceiver == null) {
 				mIncomingCallReceiver = new IncomingCallReceiver();
 				registerReceiver(mIncomingCallReceiver, new IntentFilter(INCOMING_CALL_ACTION));
@@ -78,6 +93,8 @@ public class SipManagerService extends Service {
 		
 		public void onRegistrationFailed(String localProfileUri, int errorCode, String errorMessage) {
 			LOG.w(TAG, "Registration failed.");
+			SipTransportStats transportStats = mTransportStats;
+			if (transportStats != null) transportStats.onRegistrationFailed();
 			if (mListener != null) mListener.onConnectionFailed();
 		}
 	}
@@ -85,10 +102,14 @@ public class SipManagerService extends Service {
 	private final class PostRegistrationListener implements SipRegistrationListener {
 		public void onRegistering(String localProfileUri) {
 			LOG.i(TAG, "Reconnecting to SIP Server...");
+			SipTransportStats transportStats = mTransportStats;
+			if (transportStats != null) transportStats.onRegistering();
 		}
 		
 		public void onRegistrationDone(String localProfileUri, long expiryTime) {
 			LOG.i(TAG, "Reconnection succeded");
+			SipTransportStats transportStats = mTransportStats;
+			if (transportStats != null) transportStats.onRegistrationDone();
 			mRunningNotification = createRunningNotification(R.string.sip_active_title, R.string.sip_active_content,
 					R.string.sip_active_ticker);
 			startForeground(RUNNING_NOTIFICATION_ID, mRunningNotification);
@@ -96,6 +117,8 @@ public class SipManagerService extends Service {
 		
 		public void onRegistrationFailed(String localProfileUri, int errorCode, String errorMessage) {
 			LOG.w(TAG, "Reconnection failed");
+			SipTransportStats transportStats = mTransportStats;
+			if (transportStats != null) transportStats.onRegistrationFailed();
 			NotificationManager nManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
 			mRunningNotification = createRunningNotification(R.string.sip_inactive_title, R.string.sip_inactive_content,
 					R.string.sip_inactive_ticker);
@@ -124,7 +147,7 @@ public class SipManagerService extends Service {
 	}
 	
 	/**
-	 * Connects to the SIP server
+	 * Connects to the SIP server over UDP
 	 * 
 	 * @param domain
 	 * @param username
@@ -132,17 +155,51 @@ public class SipManagerService extends Service {
 	 * @throws SipException
 	 */
 	public void connect(String domain, String username, String passwd) throws SipException {
+		connect(domain, username, passwd, TRANSPORT_UDP);
+	}
+	
+	/**
+	 * Connects to the SIP server using the given transport. With TCP the platform stack keeps a single persistent
+	 * connection to the registrar that REGISTER, INVITE and in-dialog requests share, kept open by keep-alives.
+	 * Keep-alives are only enabled for TCP so UDP behaves as before. TLS is not supported by the platform SIP stack.
+	 * 
+	 * @param domain
+	 * @param username
+	 * @param passwd
+	 * @param transport {@link #TRANSPORT_UDP} or {@link #TRANSPORT_TCP}
+	 * @throws SipException
+	 */
+	public void connect(String domain, String username, String passwd, String transport) throws SipException {
 		if (!SipManager.isApiSupported(this)) throw new SipException("Not supported.");
 		
 		if (isRegistered()) throw new SipException("Already registered.");
 		
+		if (transport == null) transport = TRANSPORT_UDP;
+		transport = transport.toUpperCase(Locale.US);
+		if (!TRANSPORT_UDP.equals(transport) && !TRANSPORT_TCP.equals(transport)) {
+			throw new SipException("Transport not supported: " + transport);
+		}
+		
+		// Close a previous profile whose registration failed so its stats stop accruing connected time
+		if (mSipProfile != null) disconnect();
+		
 		try {
 			
 			SipProfile.Builder builder = new SipProfile.Builder(username, domain);
 			builder.setPassword(passwd);
 			builder.setAutoRegistration(true); // flag set to true so that SipManager handles network state?
+			builder.setProtocol(transport);
+			builder.setSendKeepAlive(TRANSPORT_TCP.equals(transport)); // Keeps the TCP connection alive between registrations
 			mSipProfile = builder.build();
 			
+			SipTransportStats transportStats = mTransportStatsByProtocol.get(transport);
+			if (transportStats == null) {
+				transportStats = new SipTransportStats();
+				mTransportStatsByProtocol.put(transport, transportStats);
+			}
+			transportStats.onConnected();
+			mTransportStats = transportStats;
+			
 			Intent intent = new Intent();
 			intent.setAction(INCOMING_CALL_ACTION);
 			PendingIntent pendingIntent = PendingIntent.getBroadcast(this, 0, intent, Intent.FILL_IN_DATA);
@@ -212,6 +269,10 @@ public class SipManagerService extends Service {
 			mSipProfile = null;
 		}
 		
+		SipTransportStats transportStats = mTransportStats;
+		mTransportStats = null;
+		if (transportStats != null) transportStats.onDisconnected();
+		
 		if (mIncomingCallReceiver != null) {
 			unregisterReceiver(mIncomingCallReceiver);
 			mIncomingCallReceiver = null;
@@ -309,12 +370,22 @@ public class SipManagerService extends Service {
 	public void makeCall(String username, String domain) throws SipException {
 		try {
 			SipProfile.Builder builder = new SipProfile.Builder(username, domain);
+			builder.setProtocol(mSipProfile.getProtocol()); // Reuse the registration transport for the INVITE
 			SipProfile otherProfile = builder.build();
 			
+			final SipTransportStats transportStats = mTransportStats;
+			final long callStart = SystemClock.elapsedRealtime();
+			
 			mSipManager.makeAudioCall(mSipProfile, otherProfile, new SipAudioCall.Listener() {
 				
+				private boolean mSetupRecorded;
+				
 				@Override
 				public void onCallEstablished(SipAudioCall call) {
+					if (transportStats != null && !mSetupRecorded) {
+						transportStats.recordCallSetup(SystemClock.elapsedRealtime() - callStart);
+						mSetupRecorded = true; // Ignore re-INVITEs (hold/resume) on the same call
+					}
 					call.startAudio();
 					
 					if (call.isMuted()) {
@@ -405,6 +476,15 @@ public class SipManagerService extends Service {
 		}
 	}
 	
+	/**
+	 * Returns connection setup stats for every transport used since the service was created
+	 * 
+	 * @return
+	 */
+	public Map<String, SipTransportStats> getTransportStats() {
+		return new HashMap<String, SipTransportStats>(mTransportStatsByProtocol);
+	}
+	
 	public void addListener(SipManagerListener listener) {
 		mListener = listener;
 	}
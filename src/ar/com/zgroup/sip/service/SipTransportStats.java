@@ -0,0 +1,129 @@
+package ar.com.zgroup.sip.service;
+
+import android.os.SystemClock;
+
+/**
+ * Registration and call setup counters for one SIP transport. The platform SIP stack does not expose when it opens
+ * a TCP connection, so transport handshakes cannot be observed; what is counted here are REGISTER transactions
+ * (initial registrations and refreshes) over the time the transport was actually connected.
+ */
+public class SipTransportStats {
+
+	private long mConnectedSince;
+	private long mConnectedTime;
+
+	private int mRegistrationAttempts;
+	private long mRegistrationStart;
+	private long mRegistrationLatencyTotal;
+	private int mCompletedRegistrations;
+
+	private long mCallLatencyTotal;
+	private int mCalls;
+
+	/**
+	 * Called when a profile using this transport is opened
+	 */
+	public synchronized void onConnected() {
+		if (mConnectedSince == 0) {
+			mConnectedSince = SystemClock.elapsedRealtime();
+		}
+	}
+
+	/**
+	 * Called when the profile using this transport is closed
+	 */
+	public synchronized void onDisconnected() {
+		if (mConnectedSince > 0) {
+			mConnectedTime += SystemClock.elapsedRealtime() - mConnectedSince;
+			mConnectedSince = 0;
+		}
+		mRegistrationStart = 0;
+	}
+
+	/**
+	 * Called when a REGISTER (initial or refresh) is sent
+	 */
+	public synchronized void onRegistering() {
+		mRegistrationAttempts++;
+		mRegistrationStart = SystemClock.elapsedRealtime();
+	}
+
+	/**
+	 * Called when the pending REGISTER succeeds
+	 */
+	public synchronized void onRegistrationDone() {
+		if (mRegistrationStart > 0) {
+			mRegistrationLatencyTotal += SystemClock.elapsedRealtime() - mRegistrationStart;
+			mCompletedRegistrations++;
+			mRegistrationStart = 0;
+		}
+	}
+
+	/**
+	 * Called when the pending REGISTER fails
+	 */
+	public synchronized void onRegistrationFailed() {
+		mRegistrationStart = 0;
+	}
+
+	/**
+	 * Records the setup time of an established outgoing call
+	 *
+	 * @param latency milliseconds from INVITE to call established
+	 */
+	public synchronized void recordCallSetup(long latency) {
+		mCallLatencyTotal += latency;
+		mCalls++;
+	}
+
+	/**
+	 * Returns the number of REGISTER transactions started, including failed ones
+	 *
+	 * @return
+	 */
+	public synchronized int getRegistrationAttempts() {
+		return mRegistrationAttempts;
+	}
+
+	/**
+	 * Returns the total time in milliseconds a profile using this transport was connected
+	 *
+	 * @return
+	 */
+	public synchronized long getConnectedTime() {
+		long connectedTime = mConnectedTime;
+		if (mConnectedSince > 0) {
+			connectedTime += SystemClock.elapsedRealtime() - mConnectedSince;
+		}
+		return connectedTime;
+	}
+
+	/**
+	 * Returns REGISTER transactions per hour of connected time
+	 *
+	 * @return
+	 */
+	public synchronized double getRegistrationAttemptsPerHour() {
+		long connectedTime = getConnectedTime();
+		if (connectedTime <= 0) return 0;
+		return mRegistrationAttempts * 3600000d / connectedTime;
+	}
+
+	/**
+	 * Returns the average REGISTER round trip in milliseconds, or -1 if none completed
+	 *
+	 * @return
+	 */
+	public synchronized long getAverageRegistrationLatency() {
+		return mCompletedRegistrations == 0 ? -1 : mRegistrationLatencyTotal / mCompletedRegistrations;
+	}
+
+	/**
+	 * Returns the average outgoing call setup time in milliseconds, or -1 if none completed
+	 *
+	 * @return
+	 */
+	public synchronized long getAverageCallSetupLatency() {
+		return mCalls == 0 ? -1 : mCallLatencyTotal / mCalls;
+	}
+}